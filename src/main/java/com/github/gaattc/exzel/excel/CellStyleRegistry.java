@@ -0,0 +1,162 @@
+package com.github.gaattc.exzel.excel;
+
+import com.google.common.base.Strings;
+import lombok.EqualsAndHashCode;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.FontUnderline;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 工作簿内的单元格样式注册表，相同的样式与字体组合只创建一次并在各列间共享，
+ * 样式总数（含工作簿内已有样式）超过上限时抛出{@link IllegalStateException}，避免超出excel样式数量限制、styles.xml膨胀
+ *
+ * @author gaattc
+ * @since 1.0
+ * Created by gaattc on 2023/7/24
+ */
+public class CellStyleRegistry {
+
+    /**
+     * 远低于excel的64000个样式上限，正常的注解组合不会达到
+     */
+    public static final int DEFAULT_MAX_STYLES = 4000;
+
+    private final Workbook workbook;
+    private final int maxStyles;
+    private final Map<StyleKey, CellStyle> styles = new HashMap<>();
+    private final Map<FontKey, XSSFFont> fonts = new HashMap<>();
+
+    public CellStyleRegistry(Workbook workbook) {
+        this(workbook, DEFAULT_MAX_STYLES);
+    }
+
+    public CellStyleRegistry(Workbook workbook, int maxStyles) {
+        this.workbook = workbook;
+        this.maxStyles = maxStyles;
+    }
+
+    /**
+     * 表头样式{@link ExcelStyle}
+     */
+    public CellStyle get(ExcelStyle excelStyle) {
+        return get(new StyleKey(excelStyle.backgroundColor(),
+                excelStyle.fillPatternType(),
+                excelStyle.horizontalAlignment(),
+                excelStyle.verticalAlignment(),
+                "",
+                new FontKey(excelStyle.fontColor(), excelStyle.fontSize(), excelStyle.bold(), excelStyle.italic(), excelStyle.underline())
+        ));
+    }
+
+    /**
+     * 数据样式{@link ExcelDataStyle}
+     *
+     * @param stripeColor 未设置背景色时沿用的斑马纹背景色，ARGB值
+     */
+    public CellStyle get(ExcelDataStyle dataStyle, int stripeColor) {
+        boolean stripe = 0 == dataStyle.backgroundColor();
+        return get(new StyleKey(stripe ? stripeColor : dataStyle.backgroundColor(),
+                stripe ? FillPatternType.SOLID_FOREGROUND : dataStyle.fillPatternType(),
+                dataStyle.horizontalAlignment(),
+                dataStyle.verticalAlignment(),
+                dataStyle.dataFormat(),
+                new FontKey(dataStyle.fontColor(), dataStyle.fontSize(), dataStyle.bold(), dataStyle.italic(), dataStyle.underline())
+        ));
+    }
+
+    public int size() {
+        return styles.size();
+    }
+
+    private CellStyle get(StyleKey key) {
+        CellStyle cellStyle = styles.get(key);
+        if (null != cellStyle) {
+            return cellStyle;
+        }
+        if (workbook.getNumCellStyles() >= maxStyles) {
+            throw new IllegalStateException("too many cell styles, limit: " + maxStyles + ", check style annotations if correct");
+        }
+        XSSFCellStyle style = ((XSSFCellStyle) workbook.createCellStyle());
+        // 设置填充色
+        style.setFillForegroundColor(new XSSFColor(new Color(key.fillColor, true)));
+        style.setFillPattern(key.fillPattern);
+        // 设置对齐方式
+        style.setAlignment(key.horizontalAlignment);
+        style.setVerticalAlignment(key.verticalAlignment);
+        // 数据格式
+        if (!Strings.isNullOrEmpty(key.dataFormat)) {
+            style.setDataFormat(workbook.createDataFormat().getFormat(key.dataFormat));
+        }
+        style.setFont(getFont(key.font));
+        styles.put(key, style);
+        return style;
+    }
+
+    private XSSFFont getFont(FontKey key) {
+        XSSFFont font = fonts.get(key);
+        if (null != font) {
+            return font;
+        }
+        font = ((XSSFFont) workbook.createFont());
+        // 字体颜色
+        font.setColor(new XSSFColor(new Color(key.color, true)));
+        // 字体大小
+        font.setFontHeightInPoints(key.size);
+        // 粗体
+        font.setBold(key.bold);
+        // 斜体
+        font.setItalic(key.italic);
+        // 下划线
+        font.setUnderline(key.underline.getByteValue());
+        fonts.put(key, font);
+        return font;
+    }
+
+    @EqualsAndHashCode
+    private static final class StyleKey {
+        private final int fillColor;
+        private final FillPatternType fillPattern;
+        private final HorizontalAlignment horizontalAlignment;
+        private final VerticalAlignment verticalAlignment;
+        private final String dataFormat;
+        private final FontKey font;
+
+        private StyleKey(int fillColor, FillPatternType fillPattern, HorizontalAlignment horizontalAlignment,
+                         VerticalAlignment verticalAlignment, String dataFormat, FontKey font) {
+            this.fillColor = fillColor;
+            this.fillPattern = fillPattern;
+            this.horizontalAlignment = horizontalAlignment;
+            this.verticalAlignment = verticalAlignment;
+            this.dataFormat = dataFormat;
+            this.font = font;
+        }
+    }
+
+    @EqualsAndHashCode
+    private static final class FontKey {
+        private final int color;
+        private final short size;
+        private final boolean bold;
+        private final boolean italic;
+        private final FontUnderline underline;
+
+        private FontKey(int color, short size, boolean bold, boolean italic, FontUnderline underline) {
+            this.color = color;
+            this.size = size;
+            this.bold = bold;
+            this.italic = italic;
+            this.underline = underline;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.github.gaattc.exzel.excel;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExcelMapping#pureConverter()}标记的转换器结果缓存，以(转换器, 原值)为键，容量有界。
+ * 单次导出使用独立实例；{@link ExcelMapping#globalConverterCache()}开启时使用{@link #global(ClassLoader)}，
+ * 按类加载器隔离并以弱引用持有类加载器，应用重新部署后旧的类加载器可被回收。
+ * 为避免缓存内容反向强引用类加载器，全局缓存只缓存原值与结果均为jdk自带类型（字符串、数值包装类等）的转换，
+ * 且写入{@link #GLOBAL_EXPIRE_MINUTES}分钟后过期，使字典、配置的变更最终可见。
+ * 转换失败（方法不存在或抛出异常）时返回原值但不缓存，避免暂时的失败一直生效
+ *
+ * @author gaattc
+ * @since 1.0
+ * Created by gaattc on 2023/7/3
+ */
+@Slf4j
+public class ConverterCache {
+
+    /**
+     * 单次导出缓存容量，低基数列（状态码、地区id等）远小于该值
+     */
+    private static final long DEFAULT_MAXIMUM_SIZE = 1024L;
+    private static final long GLOBAL_MAXIMUM_SIZE = 10240L;
+    private static final long GLOBAL_EXPIRE_MINUTES = 30L;
+    /**
+     * Map<类加载器, 全局缓存>
+     */
+    private static final Map<ClassLoader, ConverterCache> GLOBAL = new WeakHashMap<>();
+
+    private final Cache<Key, Object> cache;
+    private final boolean shared;
+
+    public ConverterCache() {
+        this(DEFAULT_MAXIMUM_SIZE, false);
+    }
+
+    public ConverterCache(long maximumSize) {
+        this(maximumSize, false);
+    }
+
+    private ConverterCache(long maximumSize, boolean shared) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats();
+        if (shared) {
+            builder.expireAfterWrite(GLOBAL_EXPIRE_MINUTES, TimeUnit.MINUTES);
+        }
+        cache = builder.build();
+        this.shared = shared;
+    }
+
+    /**
+     * 类加载器对应的全局缓存
+     */
+    public static ConverterCache global(ClassLoader classLoader) {
+        synchronized (GLOBAL) {
+            return GLOBAL.computeIfAbsent(classLoader, i -> new ConverterCache(GLOBAL_MAXIMUM_SIZE, true));
+        }
+    }
+
+    /**
+     * 值的类型由jdk自带的启动类加载器加载时可以放入全局缓存，不会强引用应用的类加载器
+     */
+    public static boolean isSharable(Object value) {
+        return null == value || null == value.getClass().getClassLoader();
+    }
+
+    /**
+     * 命中则直接返回缓存结果，否则调用{@link ReflectCaller#tryFunction(String, Object, ClassLoader)}并缓存其非空结果，失败时返回原值
+     */
+    public Object function(String methodFullName, Object origin, ClassLoader classLoader) {
+        Key key = new Key(methodFullName, origin);
+        Object cached = cache.getIfPresent(key);
+        if (null != cached) {
+            return cached;
+        }
+        Object converted = ReflectCaller.tryFunction(methodFullName, origin, classLoader);
+        if (ReflectCaller.FAILED == converted) {
+            return origin;
+        }
+        if (null != converted && (!shared || isSharable(origin) && isSharable(converted))) {
+            cache.put(key, converted);
+        }
+        return converted;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void logStats(String name) {
+        CacheStats stats = stats();
+        if (stats.requestCount() == 0) {
+            return;
+        }
+        log.info("[ConverterCache] {} converter cache requests: {}, hit rate: {}, size: {}, evictions: {}",
+                name,
+                stats.requestCount(),
+                String.format("%.2f%%", stats.hitRate() * 100),
+                cache.size(),
+                stats.evictionCount()
+        );
+    }
+
+    @EqualsAndHashCode
+    private static final class Key {
+        private final String methodFullName;
+        private final Object origin;
+
+        private Key(String methodFullName, Object origin) {
+            this.methodFullName = methodFullName;
+            this.origin = origin;
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.github.gaattc.exzel.excel;
+
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.FontUnderline;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * excel数据单元格样式（按列自定义，不作用于表头行，表头见{@link ExcelStyle}）
+ * 可重复标注：设置了{@link #condition()}的为条件样式，按声明顺序取第一个满足条件的；均不满足则使用未设置条件的样式；
+ * 都没有则使用默认的斑马纹样式。
+ * 相同的样式组合在工作簿内只创建一次，由{@link CellStyleRegistry}共享
+ *
+ * @author gaattc
+ * @since 1.0
+ * Created by gaattc on 2023/7/24
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(ExcelDataStyles.class)
+public @interface ExcelDataStyle {
+
+    /**
+     * 样式生效条件，需要提供静态方法的完整名，允许非public方法，如："com.finebi.excel.ExcelGeneratorTest$TestForStyle#isNegative"
+     * 方法入参为转换后的单元格值，返回true时使用该样式，计算错误视为不满足。为空表示无条件
+     */
+    String condition() default "";
+
+    /**
+     * 背景色，ARGB值，为0（全透明）时沿用数据行默认的斑马纹背景
+     */
+    int backgroundColor() default 0;
+
+    FillPatternType fillPatternType() default FillPatternType.SOLID_FOREGROUND;
+
+    HorizontalAlignment horizontalAlignment() default HorizontalAlignment.GENERAL;
+
+    VerticalAlignment verticalAlignment() default VerticalAlignment.BOTTOM;
+
+    /**
+     * 数据格式，如："0.00"、"#,##0"，为空则使用常规格式。
+     * 设置后数值（Number类型或{@link ExcelStyle#cellType()}为NUMERIC的值）以数值单元格写入，由格式控制显示
+     */
+    String dataFormat() default "";
+
+    /**
+     * 字体色，ARGB值
+     */
+    int fontColor() default 0xff000000;
+
+    short fontSize() default 11;
+
+    boolean bold() default false;
+
+    boolean italic() default false;
+
+    FontUnderline underline() default FontUnderline.NONE;
+
+}
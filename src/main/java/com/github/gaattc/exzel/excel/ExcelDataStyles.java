@@ -0,0 +1,21 @@
+package com.github.gaattc.exzel.excel;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link ExcelDataStyle}的可重复标注容器
+ *
+ * @author gaattc
+ * @since 1.0
+ * Created by gaattc on 2023/7/24
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExcelDataStyles {
+
+    ExcelDataStyle[] value();
+
+}
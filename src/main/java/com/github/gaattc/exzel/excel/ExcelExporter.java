@@ -8,8 +8,12 @@ import sun.reflect.Reflection;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
 
 /**
  * @author gaattc
@@ -21,26 +25,73 @@ public class ExcelExporter {
 
     private final Object source;
     private Workbook workbook;
+    private ExcelProjection projection = ExcelProjection.all();
+    private ExportCancellation cancellation = ExportCancellation.none();
+    private ExecutorService deflateExecutor;
+    private int deflateLevel = Deflater.DEFAULT_COMPRESSION;
 
     public ExcelExporter(Object source) {
         this.source = source;
     }
 
+    /**
+     * 设置运行时列投影，仅导出选中的sheet页和列，需在{@link #generate()}之前调用
+     */
+    public ExcelExporter withProjection(ExcelProjection projection) {
+        this.projection = projection;
+        return this;
+    }
+
+    /**
+     * 设置取消令牌，生成与输出过程中定期检查，取消后立即释放工作簿及临时文件，需在{@link #generate()}之前调用
+     */
+    public ExcelExporter withCancellation(ExportCancellation cancellation) {
+        this.cancellation = null == cancellation ? ExportCancellation.none() : cancellation;
+        return this;
+    }
+
+    /**
+     * 输出时在线程池中分块并行压缩sheet页等zip条目，生成的仍是标准xlsx文件
+     *
+     * @param executor 压缩线程池，由调用方管理生命周期
+     * @param level    压缩级别，{@link Deflater#DEFAULT_COMPRESSION}或0~9，越小越快、文件越大
+     * @throws IllegalArgumentException 压缩级别不合法
+     */
+    public ExcelExporter withParallelDeflate(ExecutorService executor, int level) {
+        ParallelZipOutputStream.checkLevel(level);
+        this.deflateExecutor = executor;
+        this.deflateLevel = level;
+        return this;
+    }
+
+    /**
+     * 仅设置输出时的压缩级别，在写出线程中压缩
+     *
+     * @param level 压缩级别，{@link Deflater#DEFAULT_COMPRESSION}或0~9，越小越快、文件越大
+     * @throws IllegalArgumentException 压缩级别不合法
+     */
+    public ExcelExporter withDeflateLevel(int level) {
+        return withParallelDeflate(null, level);
+    }
+
     /**
      * 映射为excel工作簿对象
      */
     public ExcelExporter generate() throws Exception {
         if (null == workbook) {
+            ExcelGenerator generator;
             try {
                 // https://www.itzhai.com/get-invoker-by-stacktrace-and-getcallerclass.html todo：考虑jdk兼容性问题
                 Class<?> callerClass = Reflection.getCallerClass(2);
-                workbook = new ExcelGenerator(source, callerClass.getClassLoader()).generate();
+                generator = new ExcelGenerator(source, callerClass.getClassLoader());
             } catch (Error e) {
                 // 使用当前类加载器调用，将可能导致自定义列名和单元格值处理逻辑失效
                 log.warn("get caller class error, {}", e.toString());
-                workbook = new ExcelGenerator(source).generate();
+                generator = new ExcelGenerator(source);
             }
-
+            workbook = generator.withProjection(projection)
+                    .withCancellation(cancellation)
+                    .generate();
         }
         return this;
     }
@@ -56,14 +107,16 @@ public class ExcelExporter {
     }
 
     /**
-     * 将excel输出到HttpServletResponse
+     * 将excel输出到HttpServletResponse，向客户端写出失败视为客户端断开连接，自动取消导出；
+     * 临时文件读写等其他IO异常不视为断开连接
      *
      * @param response http返回值
+     * @throws CancellationException 导出被取消或客户端断开连接，断开连接时cause为写出时的IOException
      */
     public void response(HttpServletResponse response, String fileName) throws IOException {
         prepareResponse(response, fileName);
         ServletOutputStream outputStream = response.getOutputStream();
-        flush(outputStream);
+        flush(outputStream, true);
     }
 
     /**
@@ -72,7 +125,7 @@ public class ExcelExporter {
      * @param stream 输出流
      */
     public void output(OutputStream stream) throws IOException {
-        flush(stream);
+        flush(stream, false);
     }
 
     public static void prepareResponse(HttpServletResponse response, String fileName) {
@@ -80,11 +133,20 @@ public class ExcelExporter {
         response.setHeader("Content-disposition", "attachment; filename=" + fileName + ".xlsx");
     }
 
-    private void flush(OutputStream outputStream) throws IOException {
+    private void flush(OutputStream outputStream, boolean clientStream) throws IOException {
         if (outputStream != null) {
             try {
-                getWorkbook().write(outputStream);
-                outputStream.flush();
+                cancellation.checkpoint();
+                if (getWorkbook() instanceof ParallelDeflateWorkbook) {
+                    ((ParallelDeflateWorkbook) workbook).setDeflate(deflateExecutor, deflateLevel);
+                }
+                CancellableOutputStream stream = new CancellableOutputStream(outputStream, cancellation, clientStream);
+                getWorkbook().write(stream);
+                stream.flush();
+            } catch (CancellationException e) {
+                log.warn("[ExcelExporter] excel export cancelled, reason: {}{}", cancellation.getReason(),
+                        null == e.getCause() ? "" : ", " + e.getCause());
+                throw e;
             } catch (IOException e) {
                 log.error(e.getMessage(), e);
             } finally {
@@ -97,4 +159,66 @@ public class ExcelExporter {
         }
     }
 
+    /**
+     * 写出时检查取消令牌，中断sheet页数据向输出流的传输。
+     * 输出流为客户端连接时，写出失败即客户端断开连接，取消导出并抛出以该IOException为cause的{@link CancellationException}
+     */
+    private static class CancellableOutputStream extends FilterOutputStream {
+
+        private final ExportCancellation cancellation;
+        private final boolean clientStream;
+        /**
+         * 客户端断开后的写入（如关闭zip流时）重复抛出同一异常，保留原始cause
+         */
+        private CancellationException disconnected;
+
+        private CancellableOutputStream(OutputStream out, ExportCancellation cancellation, boolean clientStream) {
+            super(out);
+            this.cancellation = cancellation;
+            this.clientStream = clientStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (null != disconnected) {
+                throw disconnected;
+            }
+            cancellation.checkpoint();
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                disconnect(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (null != disconnected) {
+                throw disconnected;
+            }
+            try {
+                out.flush();
+            } catch (IOException e) {
+                disconnect(e);
+            }
+        }
+
+        private void disconnect(IOException e) throws IOException {
+            if (!clientStream) {
+                throw e;
+            }
+            cancellation.cancel(ExportCancellation.Reason.CLIENT_DISCONNECTED);
+            disconnected = new CancellationException(
+                    "excel export cancelled, reason: " + ExportCancellation.Reason.CLIENT_DISCONNECTED);
+            disconnected.initCause(e);
+            throw disconnected;
+        }
+
+    }
+
 }
@@ -14,19 +14,27 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.streaming.SXSSFCell;
 import org.apache.poi.xssf.streaming.SXSSFRow;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
-import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFColor;
-import org.apache.poi.xssf.usermodel.XSSFFont;
 import org.slf4j.helpers.MessageFormatter;
 
 import java.awt.Color;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 /**
  * poi excel对象生成器，格式为xlsx。
@@ -44,6 +52,15 @@ public class ExcelGenerator {
     private static final String NULL = "";
     private static final String ZERO_TIME_REPLACE = "--";
     private static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+    /**
+     * 每处理多少行/对象检查一次取消令牌
+     */
+    private static final int CANCELLATION_CHECK_INTERVAL = 1024;
+    /**
+     * 数据行斑马纹背景色，ARGB值
+     */
+    private static final int DATA_ROW_COLOR_ODD = 0xffcce8ff;
+    private static final int DATA_ROW_COLOR_EVEN = 0xffeff3fc;
     /**
      * Map<sheetName, Table<row, column, data>>
      */
@@ -56,12 +73,29 @@ public class ExcelGenerator {
      * Table<sheetName, cloNum, cloName>
      */
     private final Table<String, Integer, String> WORKBOOK_COLUMN_NAME = HashBasedTable.create();
+    /**
+     * Table<sheetName, cloNum, ColumnDataStyle>
+     */
+    private final Table<String, Integer, ColumnDataStyle> WORKBOOK_DATA_STYLE = HashBasedTable.create();
     private final Map<ExcelStyle, CellStyle> STYLE_CACHE = new HashMap<>();
-    private final SXSSFWorkbook workBook = new SXSSFWorkbook();
+    private final ConverterCache CONVERTER_CACHE = new ConverterCache();
+    /**
+     * 类加载器对应的全局缓存，首次使用时获取，避免逐个单元格竞争{@link ConverterCache#global(ClassLoader)}的全局锁
+     */
+    private ConverterCache globalConverterCache;
+    /**
+     * Map<class, 类及其递归子树中是否存在投影选中的列>
+     */
+    private final Map<Class<?>, Boolean> PROJECTED_CLASS_CACHE = new HashMap<>();
+    private final ParallelDeflateWorkbook workBook = new ParallelDeflateWorkbook();
     private final XSSFCellStyle dataRowStyleOdd = ((XSSFCellStyle) workBook.createCellStyle());
     private final XSSFCellStyle dataRowStyleEven = ((XSSFCellStyle) workBook.createCellStyle());
+    private final CellStyleRegistry styleRegistry = new CellStyleRegistry(workBook);
     private final Object source;
     private final ClassLoader classLoader;
+    private ExcelProjection projection = ExcelProjection.all();
+    private ExportCancellation cancellation = ExportCancellation.none();
+    private int cancellationCheckCounter = 0;
 
     public ExcelGenerator(Object source) {
         this.source = source;
@@ -73,43 +107,170 @@ public class ExcelGenerator {
         this.classLoader = classLoader;
     }
 
+    /**
+     * 设置运行时列投影，未选中的列不会被读取和转换
+     */
+    public ExcelGenerator withProjection(ExcelProjection projection) {
+        this.projection = null == projection ? ExcelProjection.all() : projection;
+        return this;
+    }
+
+    /**
+     * 设置取消令牌，数据绑定与写入sheet页过程中定期检查
+     */
+    public ExcelGenerator withCancellation(ExportCancellation cancellation) {
+        this.cancellation = null == cancellation ? ExportCancellation.none() : cancellation;
+        return this;
+    }
+
     public Workbook generate() throws Exception {
         Stopwatch stopwatch = Stopwatch.createStarted();
-        createDataRowStyle();
-        dataBinding(source, DEFAULT_FIELD_START_ROW);
-        transferToWorkbook();
+        try {
+            cancellation.checkpoint();
+            createDataRowStyle();
+            dataBinding(source, DEFAULT_FIELD_START_ROW);
+            transferToWorkbook();
+        } catch (CancellationException e) {
+            log.warn("[ExcelGenerator] excel workbook generation cancelled from {}, reason: {}, cost: {}",
+                    source.getClass().getSimpleName(),
+                    cancellation.getReason(),
+                    stopwatch.stop()
+            );
+            // 立即释放临时文件
+            release();
+            throw e;
+        } catch (Exception e) {
+            // 如样式数超出上限，此时sheet页可能已写出临时文件
+            log.warn("[ExcelGenerator] excel workbook generation failed from {}, cost: {}, {}",
+                    source.getClass().getSimpleName(),
+                    stopwatch.stop(),
+                    e.toString()
+            );
+            release();
+            throw e;
+        }
         log.info("[ExcelGenerator] excel workbook generated successfully from {}, cost: {}",
                 source.getClass().getSimpleName(),
                 stopwatch.stop()
         );
+        CONVERTER_CACHE.logStats(source.getClass().getSimpleName());
+        if (null != globalConverterCache) {
+            // 全局缓存为累计值
+            globalConverterCache.logStats("global");
+        }
         return workBook;
     }
 
+    private void release() {
+        try {
+            workBook.dispose();
+            workBook.close();
+        } catch (Throwable t) {
+            log.warn("[ExcelGenerator] release workbook error, {}", t.toString());
+        }
+    }
+
+    /**
+     * 按{@link #CANCELLATION_CHECK_INTERVAL}间隔检查取消令牌
+     */
+    private void checkCancellation() {
+        if (++cancellationCheckCounter >= CANCELLATION_CHECK_INTERVAL) {
+            cancellationCheckCounter = 0;
+            cancellation.checkpoint();
+        }
+    }
+
     private void createDataRowStyle() {
-        dataRowStyleOdd.setFillForegroundColor(new XSSFColor(new Color(204, 232, 255)));
+        dataRowStyleOdd.setFillForegroundColor(new XSSFColor(new Color(DATA_ROW_COLOR_ODD, true)));
         dataRowStyleOdd.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        dataRowStyleEven.setFillForegroundColor(new XSSFColor(new Color(239, 243, 252)));
+        dataRowStyleEven.setFillForegroundColor(new XSSFColor(new Color(DATA_ROW_COLOR_EVEN, true)));
         dataRowStyleEven.setFillPattern(FillPatternType.SOLID_FOREGROUND);
     }
 
     private void dataBinding(Object source, int startRow) throws IllegalAccessException {
+        // 整个子树都没有被投影选中的列则直接跳过
+        if (!isProjected(source.getClass())) {
+            return;
+        }
         Field[] fields = source.getClass().getDeclaredFields();
         for (Field field : fields) {
             field.setAccessible(true);
             // 当前层级域映射
             ExcelMapping excelMapping = field.getAnnotation(ExcelMapping.class);
             if (null != excelMapping) {
-                bindCurrentLevelField(source, field, excelMapping, startRow);
+                if (projection.includes(excelMapping.sheetName(), excelMapping.columnIndex())) {
+                    bindCurrentLevelField(source, field, excelMapping, startRow);
+                }
                 continue;
             }
             // 下一层级域映射
             ExcelRecursiveMapping recursiveMapping = field.getAnnotation(ExcelRecursiveMapping.class);
-            if (null != recursiveMapping) {
+            if (null != recursiveMapping && isProjected(resolveRecursiveType(field))) {
                 bindInnerLevelField(source, startRow, field);
             }
         }
     }
 
+    /**
+     * 类及其递归子树中是否存在投影选中的列，无法静态确定类型（null）时视为存在，交由运行时类型判断
+     */
+    private boolean isProjected(Class<?> clazz) {
+        if (projection.isAll() || null == clazz) {
+            return true;
+        }
+        Boolean projected = PROJECTED_CLASS_CACHE.get(clazz);
+        if (null == projected) {
+            projected = scanProjectedColumn(clazz, new HashSet<>());
+            PROJECTED_CLASS_CACHE.put(clazz, projected);
+        }
+        return projected;
+    }
+
+    private boolean scanProjectedColumn(Class<?> clazz, Set<Class<?>> visiting) {
+        // 类型间循环引用，已在扫描路径上的类不再重复扫描
+        if (!visiting.add(clazz)) {
+            return false;
+        }
+        for (Field field : clazz.getDeclaredFields()) {
+            ExcelMapping excelMapping = field.getAnnotation(ExcelMapping.class);
+            if (null != excelMapping) {
+                if (projection.includes(excelMapping.sheetName(), excelMapping.columnIndex())) {
+                    return true;
+                }
+                continue;
+            }
+            if (null != field.getAnnotation(ExcelRecursiveMapping.class)) {
+                Class<?> innerType = resolveRecursiveType(field);
+                if (null == innerType || scanProjectedColumn(innerType, visiting)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析{@link ExcelRecursiveMapping}域（或其集合元素）的静态类型，
+     * 非final类型运行时可能为声明了更多域的子类，返回null表示无法静态确定
+     */
+    private static Class<?> resolveRecursiveType(Field field) {
+        Type type = field.getGenericType();
+        Class<?> fieldType = field.getType();
+        if (isIterable(fieldType)) {
+            if (!(Collection.class.isAssignableFrom(fieldType) || Iterable.class == fieldType)
+                    || !(type instanceof ParameterizedType)) {
+                return null;
+            }
+            Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+            type = typeArguments.length == 1 ? typeArguments[0] : null;
+        }
+        if (!(type instanceof Class)) {
+            return null;
+        }
+        Class<?> clazz = (Class<?>) type;
+        return Modifier.isFinal(clazz.getModifiers()) ? clazz : null;
+    }
+
     private void bindCurrentLevelField(Object source, Field field, ExcelMapping excelMapping, int startRow) throws IllegalAccessException {
         String sheetName = excelMapping.sheetName();
         Table<Integer, Integer, Object> sheet = WORKBOOK_DATA.computeIfAbsent(sheetName, i -> HashBasedTable.create());
@@ -118,6 +279,7 @@ public class ExcelGenerator {
         if (isIterable(field.getType()) && fieldData != null) {
             Iterator<?> iterator = ((Iterable<?>) fieldData).iterator();
             for (int row = 0; iterator.hasNext(); row++) {
+                checkCancellation();
                 Object data = calculateData(iterator.next(), excelMapping);
                 checkConflict(sheet, columnIndex, row, data);
                 sheet.put(row, columnIndex, data);
@@ -132,6 +294,13 @@ public class ExcelGenerator {
         if (null != excelStyle) {
             WORKBOOK_HEADER_STYLE.put(sheetName, columnIndex, excelStyle);
         }
+        // 数据单元格样式，每列只解析一次
+        if (!WORKBOOK_DATA_STYLE.contains(sheetName, columnIndex)) {
+            ExcelDataStyle[] dataStyles = field.getAnnotationsByType(ExcelDataStyle.class);
+            if (dataStyles.length > 0) {
+                WORKBOOK_DATA_STYLE.put(sheetName, columnIndex, new ColumnDataStyle(dataStyles));
+            }
+        }
         // 字段名
         String columnName = generateColumnName(field.getName(), excelStyle);
         WORKBOOK_COLUMN_NAME.put(sheetName, columnIndex, columnName);
@@ -143,6 +312,7 @@ public class ExcelGenerator {
             Iterable<?> iterableField = (Iterable<?>) field.get(source);
             int innerRow = startRow;
             for (Object fieldObj : iterableField) {
+                checkCancellation();
                 dataBinding(fieldObj, innerRow++);
             }
         } else {
@@ -158,7 +328,7 @@ public class ExcelGenerator {
         // 先进行转换计算
         String converter = excelMapping.contentConverter();
         if (!Strings.isNullOrEmpty(converter)) {
-            data = ReflectCaller.function(converter, data, classLoader);
+            data = convert(converter, data, excelMapping);
         }
         // 最后尝试格式化日期
         if (excelMapping.tryFormatDateTime() && Long.class.isAssignableFrom(data.getClass())) {
@@ -173,6 +343,20 @@ public class ExcelGenerator {
         }
     }
 
+    private Object convert(String converter, Object data, ExcelMapping excelMapping) {
+        if (!excelMapping.pureConverter()) {
+            return ReflectCaller.function(converter, data, classLoader);
+        }
+        // 自定义类型（如枚举）的原值会强引用应用的类加载器，只使用单次导出缓存
+        if (excelMapping.globalConverterCache() && ConverterCache.isSharable(data)) {
+            if (null == globalConverterCache) {
+                globalConverterCache = ConverterCache.global(classLoader);
+            }
+            return globalConverterCache.function(converter, data, classLoader);
+        }
+        return CONVERTER_CACHE.function(converter, data, classLoader);
+    }
+
     private Object nullless(Object data) {
         return null == data ? NULL : data;
     }
@@ -208,21 +392,25 @@ public class ExcelGenerator {
 
     private void transferToWorkbook() {
         for (Map.Entry<String, Table<Integer, Integer, Object>> sheetMapEntry : WORKBOOK_DATA.entrySet()) {
+            cancellation.checkpoint();
             String sheetName = sheetMapEntry.getKey();
             SXSSFSheet sheet = workBook.createSheet(sheetName);
             // 表头
             SXSSFRow headerRow = sheet.createRow(DEFAULT_FIELD_START_ROW);
             Map<Integer, ExcelStyle> columnStyleMap = WORKBOOK_HEADER_STYLE.row(sheetName);
+            Map<Integer, ColumnDataStyle> columnDataStyleMap = WORKBOOK_DATA_STYLE.row(sheetName);
+            // 投影限定了列的sheet页压缩为连续列
+            Map<Integer, Integer> compactedColumns = projection.compact(sheetName, WORKBOOK_COLUMN_NAME.row(sheetName).keySet());
             for (Map.Entry<Integer, String> headerColumnNameMapEntry : WORKBOOK_COLUMN_NAME.row(sheetName).entrySet()) {
                 Integer columnNum = headerColumnNameMapEntry.getKey();
                 ExcelStyle excelStyle = columnStyleMap.get(columnNum);
-                SXSSFCell headerRowCell = headerRow.createCell(columnNum);
+                SXSSFCell headerRowCell = headerRow.createCell(compactedColumns.getOrDefault(columnNum, columnNum));
                 CellStyle cellStyle = createStyle(excelStyle);
                 if (null != cellStyle) {
                     headerRowCell.setCellStyle(cellStyle);
                     // 设置自动列宽追踪
                     if (excelStyle.autoSizeColumn()) {
-                        sheet.trackColumnForAutoSizing(columnNum);
+                        sheet.trackColumnForAutoSizing(compactedColumns.getOrDefault(columnNum, columnNum));
                     }
                 }
                 headerRowCell.setCellValue(headerColumnNameMapEntry.getValue());
@@ -230,18 +418,21 @@ public class ExcelGenerator {
             // 数据
             Map<Integer, Map<Integer, Object>> rowMap = sheetMapEntry.getValue().rowMap();
             for (Map.Entry<Integer, Map<Integer, Object>> rowMapEntry : rowMap.entrySet()) {
+                checkCancellation();
                 // 在表头行下面开始写数据
                 SXSSFRow row = sheet.createRow(rowMapEntry.getKey() + 1);
                 // 行遍历
                 for (Map.Entry<Integer, Object> columnMapEntry : rowMapEntry.getValue().entrySet()) {
                     Integer columnNum = columnMapEntry.getKey();
-                    SXSSFCell cell = row.createCell(columnNum);
-                    setCellStyle(cell, rowMapEntry.getKey());
-                    setValueByType(cell, columnMapEntry.getValue(), columnStyleMap.get(columnNum));
+                    SXSSFCell cell = row.createCell(compactedColumns.getOrDefault(columnNum, columnNum));
+                    CellStyle dataStyle = setCellStyle(cell, rowMapEntry.getKey(), columnMapEntry.getValue(), columnDataStyleMap.get(columnNum));
+                    // 设置了数据格式的单元格需以数值写入，格式才能生效
+                    boolean formatted = null != dataStyle && 0 != dataStyle.getDataFormat();
+                    setValueByType(cell, columnMapEntry.getValue(), columnStyleMap.get(columnNum), formatted);
                 }
             }
             // 调整列宽
-            adjustColumnSize(sheetName, sheet);
+            adjustColumnSize(sheet);
         }
     }
 
@@ -253,43 +444,39 @@ public class ExcelGenerator {
         if (null != cellStyle) {
             return cellStyle;
         }
-        XSSFCellStyle style = ((XSSFCellStyle) workBook.createCellStyle());
-        // 设置填充色
-        style.setFillForegroundColor(new XSSFColor(new Color(excelStyle.backgroundColor(), true)));
-        style.setFillPattern(excelStyle.fillPatternType());
-        // 设置对齐方式
-        style.setAlignment(excelStyle.horizontalAlignment());
-        style.setVerticalAlignment(excelStyle.verticalAlignment());
-        // 字体样式
-        XSSFFont font = ((XSSFFont) workBook.createFont());
-        // 字体颜色
-        font.setColor(new XSSFColor(new Color(excelStyle.fontColor(), true)));
-        // 字体大小
-        font.setFontHeightInPoints(excelStyle.fontSize());
-        // 粗体
-        font.setBold(excelStyle.bold());
-        // 斜体
-        font.setItalic(excelStyle.italic());
-        // 下划线
-        font.setUnderline(excelStyle.underline().getByteValue());
-        style.setFont(font);
-        STYLE_CACHE.put(excelStyle, style);
-        return style;
+        // 相同的样式组合由注册表共享
+        cellStyle = styleRegistry.get(excelStyle);
+        STYLE_CACHE.put(excelStyle, cellStyle);
+        return cellStyle;
     }
 
     private static boolean isIterable(Class<?> clazz) {
         return Iterable.class.isAssignableFrom(clazz);
     }
 
-    private void setCellStyle(SXSSFCell cell, Integer rowNum) {
-        if (rowNum % 2 == 0) {
+    /**
+     * @return 匹配的数据样式，使用默认斑马纹样式时返回null
+     */
+    private CellStyle setCellStyle(SXSSFCell cell, Integer rowNum, Object value, ColumnDataStyle columnDataStyle) {
+        CellStyle dataStyle = null == columnDataStyle ? null : columnDataStyle.resolve(rowNum % 2 == 0, value);
+        if (null != dataStyle) {
+            cell.setCellStyle(dataStyle);
+        } else if (rowNum % 2 == 0) {
             cell.setCellStyle(dataRowStyleEven);
         } else {
             cell.setCellStyle(dataRowStyleOdd);
         }
+        return dataStyle;
     }
 
-    private void setValueByType(SXSSFCell cell, Object value, ExcelStyle excelStyle) {
+    /**
+     * @param formatted 单元格样式设置了{@link ExcelDataStyle#dataFormat()}，此时数值以数值单元格写入
+     */
+    private void setValueByType(SXSSFCell cell, Object value, ExcelStyle excelStyle, boolean formatted) {
+        if (formatted && value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+            return;
+        }
         if (null == excelStyle) {
             cell.setCellValue(value.toString());
             return;
@@ -297,6 +484,11 @@ public class ExcelGenerator {
         // 目前仅支持数值、文本、布尔类型
         switch (excelStyle.cellType()) {
             case NUMERIC:
+                if (formatted) {
+                    // 由数据格式控制显示精度
+                    cell.setCellValue(new BigDecimal(value.toString()).doubleValue());
+                    break;
+                }
                 String decimal = new BigDecimal(value.toString())
                         // todo 这里的特性考虑要不要开放给外部自定
                         .setScale(2, RoundingMode.HALF_UP)
@@ -313,11 +505,67 @@ public class ExcelGenerator {
         }
     }
 
-    private void adjustColumnSize(String sheetName, SXSSFSheet sheet) {
-        for (Integer columnNum : WORKBOOK_COLUMN_NAME.row(sheetName).keySet()) {
-            if (sheet.isColumnTrackedForAutoSizing(columnNum)) {
-                sheet.autoSizeColumn(columnNum);
+    private void adjustColumnSize(SXSSFSheet sheet) {
+        for (Integer columnNum : sheet.getTrackedColumnsForAutoSizing()) {
+            sheet.autoSizeColumn(columnNum);
+        }
+    }
+
+    /**
+     * 列的数据样式，条件方法在创建时解析，解析出的CellStyle按[样式下标][行奇偶]缓存，写入单元格时只做条件计算和数组查找
+     */
+    private final class ColumnDataStyle {
+        private final ExcelDataStyle[] conditionalStyles;
+        /**
+         * 与conditionalStyles一一对应，解析失败为null，视为不满足
+         */
+        private final Method[] conditions;
+        private final ExcelDataStyle defaultStyle;
+        /**
+         * 最后一个为无条件样式
+         */
+        private final CellStyle[][] resolved;
+
+        private ColumnDataStyle(ExcelDataStyle[] dataStyles) {
+            List<ExcelDataStyle> conditional = new ArrayList<>(dataStyles.length);
+            ExcelDataStyle unconditional = null;
+            for (ExcelDataStyle dataStyle : dataStyles) {
+                if (!Strings.isNullOrEmpty(dataStyle.condition())) {
+                    conditional.add(dataStyle);
+                } else if (null == unconditional) {
+                    unconditional = dataStyle;
+                }
+            }
+            conditionalStyles = conditional.toArray(new ExcelDataStyle[0]);
+            conditions = new Method[conditionalStyles.length];
+            for (int i = 0; i < conditionalStyles.length; i++) {
+                conditions[i] = ReflectCaller.resolve(conditionalStyles[i].condition(), classLoader);
             }
+            defaultStyle = unconditional;
+            resolved = new CellStyle[conditionalStyles.length + 1][2];
+        }
+
+        /**
+         * @return 匹配的样式，没有匹配的样式返回null
+         */
+        private CellStyle resolve(boolean evenRow, Object value) {
+            for (int i = 0; i < conditionalStyles.length; i++) {
+                // 调用失败返回ReflectCaller.FAILED，视为不满足
+                if (null != conditions[i] && Boolean.TRUE.equals(ReflectCaller.invoke(conditions[i], value))) {
+                    return resolve(i, conditionalStyles[i], evenRow);
+                }
+            }
+            return null == defaultStyle ? null : resolve(conditionalStyles.length, defaultStyle, evenRow);
+        }
+
+        private CellStyle resolve(int index, ExcelDataStyle dataStyle, boolean evenRow) {
+            int parity = evenRow ? 0 : 1;
+            CellStyle cellStyle = resolved[index][parity];
+            if (null == cellStyle) {
+                cellStyle = styleRegistry.get(dataStyle, evenRow ? DATA_ROW_COLOR_EVEN : DATA_ROW_COLOR_ODD);
+                resolved[index][parity] = cellStyle;
+            }
+            return cellStyle;
         }
     }
 
@@ -30,4 +30,16 @@ public @interface ExcelMapping {
      */
     String contentConverter() default "";
 
+    /**
+     * 标记{@link ExcelMapping#contentConverter()}为纯函数（相同输入总是得到相同输出且无副作用），
+     * 开启后转换结果按原值缓存于{@link ConverterCache}，适用于状态码、地区id等低基数列
+     */
+    boolean pureConverter() default false;
+
+    /**
+     * 与{@link ExcelMapping#pureConverter()}配合使用，开启后使用进程内共享（按类加载器隔离）的缓存{@link ConverterCache#global(ClassLoader)}，
+     * 否则缓存仅在单次导出内有效
+     */
+    boolean globalConverterCache() default false;
+
 }
@@ -0,0 +1,155 @@
+package com.github.gaattc.exzel.excel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 运行时列投影，决定导出哪些sheet页和列，以sheetName与{@link ExcelMapping#columnIndex()}定位列。
+ * 未被选中的域不会被读取和转换，不含任何选中列的{@link ExcelRecursiveMapping}子树整体跳过。
+ * 通过{@link #includeColumns(String, int...)}或{@link #orderColumns(String, int...)}限定列的sheet页，
+ * 其剩余列会被压缩为从0开始的连续列。
+ * 多次选中同一sheet页时取并集，已整体选中的sheet页仍为整体选中
+ *
+ * @author gaattc
+ * @since 1.0
+ * Created by gaattc on 2023/7/5
+ */
+public class ExcelProjection {
+
+    private static final ExcelProjection ALL = new ExcelProjection();
+
+    /**
+     * Map<sheetName, 选中列>，选中列为null表示选中该sheet页全部列
+     */
+    private final Map<String, List<Integer>> includedSheets = new LinkedHashMap<>();
+    /**
+     * 按{@link #orderColumns(String, int...)}指定顺序输出的sheet页
+     */
+    private final Set<String> orderedSheets = new HashSet<>();
+
+    private ExcelProjection() {
+    }
+
+    /**
+     * 不做投影，导出全部sheet页和列
+     */
+    public static ExcelProjection all() {
+        return ALL;
+    }
+
+    public static ExcelProjection create() {
+        return new ExcelProjection();
+    }
+
+    /**
+     * 选中整个sheet页，列保持原位置
+     */
+    public ExcelProjection includeSheet(String sheetName) {
+        checkModifiable();
+        includedSheets.put(sheetName, null);
+        orderedSheets.remove(sheetName);
+        return this;
+    }
+
+    /**
+     * 选中sheet页中的指定列，压缩后按原列号升序排列；sheet页已被{@link #includeSheet(String)}整体选中时不变
+     */
+    public ExcelProjection includeColumns(String sheetName, int... columnIndexes) {
+        checkModifiable();
+        if (isWholeSheet(sheetName)) {
+            return this;
+        }
+        List<Integer> columns = includedSheets.get(sheetName);
+        if (null == columns) {
+            columns = new ArrayList<>();
+            includedSheets.put(sheetName, columns);
+        }
+        for (int columnIndex : columnIndexes) {
+            if (!columns.contains(columnIndex)) {
+                columns.add(columnIndex);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 选中sheet页中的指定列，压缩后按参数顺序排列
+     *
+     * @throws IllegalStateException sheet页已被{@link #includeSheet(String)}整体选中，列顺序无法生效
+     */
+    public ExcelProjection orderColumns(String sheetName, int... columnIndexes) {
+        checkModifiable();
+        if (isWholeSheet(sheetName)) {
+            throw new IllegalStateException("sheet " + sheetName + " is included as a whole, columns can not be ordered");
+        }
+        includeColumns(sheetName, columnIndexes);
+        orderedSheets.add(sheetName);
+        return this;
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    public boolean includes(String sheetName, int columnIndex) {
+        if (isAll()) {
+            return true;
+        }
+        if (!includedSheets.containsKey(sheetName)) {
+            return false;
+        }
+        List<Integer> columns = includedSheets.get(sheetName);
+        return null == columns || columns.contains(columnIndex);
+    }
+
+    /**
+     * 计算sheet页中实际存在的列压缩后的新列号
+     *
+     * @param sheetName     sheet页
+     * @param columnIndexes 该sheet页已绑定的原列号
+     * @return Map<原列号, 新列号>，sheet页未限定列时返回空map，表示保持原位置
+     */
+    public Map<Integer, Integer> compact(String sheetName, Iterable<Integer> columnIndexes) {
+        List<Integer> columns = isAll() ? null : includedSheets.get(sheetName);
+        if (null == columns) {
+            return Collections.emptyMap();
+        }
+        List<Integer> present = new ArrayList<>();
+        for (Integer columnIndex : columnIndexes) {
+            present.add(columnIndex);
+        }
+        List<Integer> ordered = new ArrayList<>(present.size());
+        if (orderedSheets.contains(sheetName)) {
+            for (Integer columnIndex : columns) {
+                if (present.contains(columnIndex)) {
+                    ordered.add(columnIndex);
+                }
+            }
+        } else {
+            ordered.addAll(present);
+            Collections.sort(ordered);
+        }
+        Map<Integer, Integer> compacted = new HashMap<>(ordered.size() * 2);
+        for (int i = 0; i < ordered.size(); i++) {
+            compacted.put(ordered.get(i), i);
+        }
+        return compacted;
+    }
+
+    private boolean isWholeSheet(String sheetName) {
+        return includedSheets.containsKey(sheetName) && null == includedSheets.get(sheetName);
+    }
+
+    private void checkModifiable() {
+        if (isAll()) {
+            throw new IllegalStateException("projection all() is shared and can not be modified, use create() instead");
+        }
+    }
+
+}
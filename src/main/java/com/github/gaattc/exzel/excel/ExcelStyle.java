@@ -12,7 +12,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * excel表头单元格样式（仅表头行，支持按列自定义）
+ * excel表头单元格样式（仅表头行，支持按列自定义），数据单元格样式见{@link ExcelDataStyle}
  *
  * @author gaattc
  * @since 1.0
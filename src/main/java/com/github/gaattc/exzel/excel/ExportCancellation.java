@@ -0,0 +1,99 @@
+package com.github.gaattc.exzel.excel;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 导出取消令牌，支持主动取消与截止时间，生成与输出过程中会定期检查，
+ * 一经取消即抛出{@link CancellationException}并立即释放工作簿及其临时文件。
+ * 线程安全，可在其他线程（如请求超时回调）中调用{@link #cancel()}
+ *
+ * @author gaattc
+ * @since 1.0
+ * Created by gaattc on 2023/7/10
+ */
+public class ExportCancellation {
+
+    private static final long NO_DEADLINE = -1L;
+    private static final ExportCancellation NONE = new ExportCancellation(NO_DEADLINE);
+
+    private final long deadlineNanos;
+    private final AtomicReference<Reason> reason = new AtomicReference<>();
+
+    private ExportCancellation(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 不可取消、无截止时间
+     */
+    public static ExportCancellation none() {
+        return NONE;
+    }
+
+    public static ExportCancellation create() {
+        return new ExportCancellation(NO_DEADLINE);
+    }
+
+    /**
+     * 从当前时刻起超过timeout后视为取消
+     */
+    public static ExportCancellation withDeadline(long timeout, TimeUnit unit) {
+        return new ExportCancellation(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    public void cancel() {
+        cancel(Reason.CANCELLED);
+    }
+
+    public void cancel(Reason reason) {
+        if (this == NONE) {
+            return;
+        }
+        // 保留第一次取消的原因
+        this.reason.compareAndSet(null, reason);
+    }
+
+    public boolean isCancelled() {
+        return null != getReason();
+    }
+
+    /**
+     * @return 取消原因，未取消返回null
+     */
+    public Reason getReason() {
+        Reason current = reason.get();
+        if (null == current && deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos >= 0) {
+            cancel(Reason.DEADLINE_EXCEEDED);
+            current = reason.get();
+        }
+        return current;
+    }
+
+    /**
+     * 已取消则抛出{@link CancellationException}
+     */
+    public void checkpoint() {
+        Reason current = getReason();
+        if (null != current) {
+            throw new CancellationException("excel export cancelled, reason: " + current);
+        }
+    }
+
+    public enum Reason {
+        /**
+         * 调用方主动取消
+         */
+        CANCELLED,
+        /**
+         * 超过截止时间
+         */
+        DEADLINE_EXCEEDED,
+        /**
+         * 输出时客户端断开连接
+         */
+        CLIENT_DISCONNECTED
+    }
+
+}
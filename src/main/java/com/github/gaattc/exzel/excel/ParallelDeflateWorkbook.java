@@ -0,0 +1,123 @@
+package com.github.gaattc.exzel.excel;
+
+import org.apache.poi.openxml4j.util.ZipEntrySource;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFChartSheet;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * 支持并行压缩输出的{@link SXSSFWorkbook}，设置了线程池或压缩级别后，
+ * {@link #write(OutputStream)}时由{@link ParallelZipOutputStream}替代poi内部单线程的ZipOutputStream，否则与父类行为一致
+ *
+ * @author gaattc
+ * @since 1.0
+ * Created by gaattc on 2023/7/14
+ */
+public class ParallelDeflateWorkbook extends SXSSFWorkbook {
+
+    private static final String SHEET_DATA_START = "<sheetData>";
+    private static final String SHEET_DATA_END = "</sheetData>";
+    private static final String SHEET_DATA_EMPTY = "<sheetData/>";
+
+    private ExecutorService deflateExecutor;
+    private int deflateLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * @param deflateExecutor 压缩线程池，为null则在写出线程中压缩
+     * @param deflateLevel    压缩级别，{@link Deflater#DEFAULT_COMPRESSION}或0~9
+     */
+    public void setDeflate(ExecutorService deflateExecutor, int deflateLevel) {
+        ParallelZipOutputStream.checkLevel(deflateLevel);
+        this.deflateExecutor = deflateExecutor;
+        this.deflateLevel = deflateLevel;
+    }
+
+    @Override
+    protected void injectData(ZipEntrySource zipEntrySource, OutputStream out) throws IOException {
+        if (null == deflateExecutor && Deflater.DEFAULT_COMPRESSION == deflateLevel) {
+            super.injectData(zipEntrySource, out);
+            return;
+        }
+        try {
+            Map<String, SXSSFSheet> sheets = getSheetsByZipEntryName();
+            ParallelZipOutputStream zos = new ParallelZipOutputStream(out, deflateExecutor, deflateLevel);
+            try {
+                Enumeration<? extends ZipEntry> en = zipEntrySource.getEntries();
+                while (en.hasMoreElements()) {
+                    ZipEntry ze = en.nextElement();
+                    zos.putNextEntry(ze.getName());
+                    try (InputStream is = zipEntrySource.getInputStream(ze)) {
+                        SXSSFSheet sheet = sheets.get(ze.getName());
+                        if (null != sheet) {
+                            try (InputStream xis = sheet.getWorksheetXMLInputStream()) {
+                                copyStreamAndInjectWorksheet(is, zos, xis);
+                            }
+                        } else {
+                            IOUtils.copy(is, zos);
+                        }
+                    }
+                    zos.closeEntry();
+                }
+            } finally {
+                zos.close();
+            }
+        } finally {
+            zipEntrySource.close();
+        }
+    }
+
+    /**
+     * Map<zip条目名, 需要注入数据的sheet页>，同父类，图表sheet页不注入数据
+     */
+    private Map<String, SXSSFSheet> getSheetsByZipEntryName() {
+        Map<String, SXSSFSheet> sheets = new HashMap<>();
+        for (int i = 0; i < getNumberOfSheets(); i++) {
+            XSSFSheet xSheet = getXSSFWorkbook().getSheetAt(i);
+            if (!(xSheet instanceof XSSFChartSheet)) {
+                sheets.put(xSheet.getPackagePart().getPartName().getName().substring(1), getSheetAt(i));
+            }
+        }
+        return sheets;
+    }
+
+    /**
+     * 将sheet页数据注入模板sheet页xml的sheetData节点中，模板xml不含行数据，直接整体读入处理
+     */
+    private static void copyStreamAndInjectWorksheet(InputStream in, OutputStream out, InputStream worksheetData) throws IOException {
+        ByteArrayOutputStream template = new ByteArrayOutputStream();
+        IOUtils.copy(in, template);
+        String xml = new String(template.toByteArray(), StandardCharsets.UTF_8);
+        String head = xml;
+        String tail = "";
+        int emptyIndex = xml.indexOf(SHEET_DATA_EMPTY);
+        int startIndex = xml.indexOf(SHEET_DATA_START);
+        if (emptyIndex >= 0) {
+            head = xml.substring(0, emptyIndex);
+            tail = xml.substring(emptyIndex + SHEET_DATA_EMPTY.length());
+        } else if (startIndex >= 0) {
+            int endIndex = xml.indexOf(SHEET_DATA_END, startIndex);
+            head = xml.substring(0, startIndex);
+            tail = endIndex >= 0 ? xml.substring(endIndex + SHEET_DATA_END.length()) : "";
+        }
+        out.write(head.getBytes(StandardCharsets.UTF_8));
+        out.write(SHEET_DATA_START.getBytes(StandardCharsets.UTF_8));
+        IOUtils.copy(worksheetData, out);
+        out.write(SHEET_DATA_END.getBytes(StandardCharsets.UTF_8));
+        out.write(tail.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,411 @@
+package com.github.gaattc.exzel.excel;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 分块并行压缩的zip输出流，思路同pigz：
+ * 条目数据按{@link #DEFAULT_BLOCK_SIZE}切块，各块在线程池中独立进行raw deflate，以前一块末尾32KB作为预设字典保证压缩率，
+ * 非末尾块以{@link Deflater#SYNC_FLUSH}结束对齐到字节边界，因此按顺序拼接即为一个合法的deflate流。
+ * crc与大小记录在数据描述符(data descriptor)中，输出为标准zip文件。
+ * 不足一块的小条目直接在调用线程压缩；线程池为null时全部在调用线程压缩。
+ * 不支持zip64，单个条目及整个文件不能超过4GB
+ *
+ * @author gaattc
+ * @since 1.0
+ * Created by gaattc on 2023/7/14
+ */
+public class ParallelZipOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP16_LIMIT = 0xFFFF;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int VERSION = 20;
+    /**
+     * bit 3: 使用数据描述符；bit 11: 文件名为UTF-8
+     */
+    private static final int FLAGS = 0x0808;
+    private static final int METHOD_DEFLATED = 8;
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int level;
+    private final int blockSize;
+    /**
+     * 已提交未写出的压缩块上限，限制内存占用
+     */
+    private final int maxPendingBlocks;
+    private final int dosTime;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private final byte[] writeBuffer = new byte[4];
+    private Entry current;
+    private byte[] block;
+    private int blockLength;
+    private byte[] previousBlock;
+    private long written;
+    private boolean closed;
+    /**
+     * 写入过程中的第一个异常，为IOException或RuntimeException
+     */
+    private Exception failure;
+
+    public ParallelZipOutputStream(OutputStream out, ExecutorService executor, int level) {
+        this(out, executor, level, DEFAULT_BLOCK_SIZE);
+    }
+
+    public ParallelZipOutputStream(OutputStream out, ExecutorService executor, int level, int blockSize) {
+        checkLevel(level);
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("block size must be at least " + DICTIONARY_SIZE + ", got: " + blockSize);
+        }
+        this.out = new BufferedOutputStream(out, DEFAULT_BLOCK_SIZE);
+        this.executor = executor;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.maxPendingBlocks = Runtime.getRuntime().availableProcessors() * 2;
+        this.dosTime = toDosTime(System.currentTimeMillis());
+    }
+
+    /**
+     * 校验压缩级别为{@link Deflater#DEFAULT_COMPRESSION}或0~9
+     */
+    static void checkLevel(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("invalid deflate level: " + level);
+        }
+    }
+
+    /**
+     * 开始写入新的条目，未关闭的上一个条目会先被关闭
+     */
+    public void putNextEntry(String name) throws IOException {
+        checkNotClosed();
+        try {
+            doPutNextEntry(name);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    public void closeEntry() throws IOException {
+        checkNotClosed();
+        try {
+            doCloseEntry();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        writeBuffer[0] = (byte) b;
+        write(writeBuffer, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkNotClosed();
+        try {
+            doWrite(b, off, len);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭当前条目，写出中央目录，并关闭底层输出流。
+     * 之前的写入已失败时不再补全条目和中央目录，只取消未完成的压缩块、关闭底层输出流并重新抛出原异常
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (null == failure) {
+            try {
+                doCloseEntry();
+                writeCentralDirectory();
+                out.flush();
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+        closed = true;
+        for (Future<byte[]> pendingBlock : pendingBlocks) {
+            pendingBlock.cancel(true);
+        }
+        pendingBlocks.clear();
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (null == failure) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (null != failure) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    private void doPutNextEntry(String name) throws IOException {
+        if (null != current) {
+            doCloseEntry();
+        }
+        if (entries.size() >= ZIP16_LIMIT) {
+            throw new IOException("too many zip entries, zip64 is not supported");
+        }
+        current = new Entry(name.getBytes(StandardCharsets.UTF_8), written);
+        entries.add(current);
+        crc.reset();
+        block = new byte[blockSize];
+        blockLength = 0;
+        previousBlock = null;
+        // 本地文件头，crc与大小在数据描述符中给出
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(VERSION);
+        writeShort(FLAGS);
+        writeShort(METHOD_DEFLATED);
+        writeInt(dosTime);
+        writeInt(0);
+        writeInt(0);
+        writeInt(0);
+        writeShort(current.name.length);
+        writeShort(0);
+        writeBytes(current.name, 0, current.name.length);
+    }
+
+    private void doCloseEntry() throws IOException {
+        if (null == current) {
+            return;
+        }
+        submitBlock(true);
+        while (!pendingBlocks.isEmpty()) {
+            writePendingBlock();
+        }
+        current.crc = crc.getValue();
+        if (current.size > ZIP32_LIMIT || current.compressedSize > ZIP32_LIMIT || written > ZIP32_LIMIT) {
+            throw new IOException("zip entry too large, zip64 is not supported: " + new String(current.name, StandardCharsets.UTF_8));
+        }
+        writeInt(DATA_DESCRIPTOR_SIGNATURE);
+        writeInt((int) current.crc);
+        writeInt((int) current.compressedSize);
+        writeInt((int) current.size);
+        current = null;
+        block = null;
+        previousBlock = null;
+    }
+
+    private void doWrite(byte[] b, int off, int len) throws IOException {
+        if (null == current) {
+            throw new IOException("no current zip entry, call putNextEntry() first");
+        }
+        while (len > 0) {
+            int copy = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, copy);
+            blockLength += copy;
+            off += copy;
+            len -= copy;
+            if (blockLength == blockSize) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        final byte[] dictionary = previousBlock;
+        crc.update(data, 0, length);
+        current.size += length;
+        if (null == executor || (last && current.blocks == 0)) {
+            // 小条目不值得切换线程
+            pendingBlocks.add(CompletableFuture.completedFuture(deflate(data, length, dictionary, level, last)));
+        } else {
+            pendingBlocks.add(executor.submit(() -> deflate(data, length, dictionary, level, last)));
+        }
+        current.blocks++;
+        previousBlock = last ? null : data;
+        block = last ? null : new byte[blockSize];
+        blockLength = 0;
+        while (pendingBlocks.size() > maxPendingBlocks) {
+            writePendingBlock();
+        }
+    }
+
+    private void writePendingBlock() throws IOException {
+        byte[] compressed;
+        try {
+            compressed = pendingBlocks.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for deflate block");
+        } catch (ExecutionException e) {
+            throw new IOException("deflate block failed", e.getCause());
+        }
+        current.compressedSize += compressed.length;
+        writeBytes(compressed, 0, compressed.length);
+    }
+
+    private static byte[] deflate(byte[] data, int length, byte[] dictionary, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (null != dictionary) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(data, 0, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[DICTIONARY_SIZE];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, count);
+                }
+            } else {
+                // 输出填满缓冲区时需继续调用才能完成flush
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long centralDirectoryOffset = written;
+        for (Entry entry : entries) {
+            writeInt(CENTRAL_HEADER_SIGNATURE);
+            writeShort(VERSION);
+            writeShort(VERSION);
+            writeShort(FLAGS);
+            writeShort(METHOD_DEFLATED);
+            writeInt(dosTime);
+            writeInt((int) entry.crc);
+            writeInt((int) entry.compressedSize);
+            writeInt((int) entry.size);
+            writeShort(entry.name.length);
+            // extra field, comment, disk number, internal attributes
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            // external attributes
+            writeInt(0);
+            writeInt((int) entry.offset);
+            writeBytes(entry.name, 0, entry.name.length);
+        }
+        long centralDirectorySize = written - centralDirectoryOffset;
+        if (written > ZIP32_LIMIT) {
+            throw new IOException("zip file too large, zip64 is not supported");
+        }
+        writeInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        writeShort(0);
+        writeShort(0);
+        writeShort(entries.size());
+        writeShort(entries.size());
+        writeInt((int) centralDirectorySize);
+        writeInt((int) centralDirectoryOffset);
+        writeShort(0);
+    }
+
+    private void writeShort(int v) throws IOException {
+        out.write(v & 0xff);
+        out.write((v >>> 8) & 0xff);
+        written += 2;
+    }
+
+    private void writeInt(int v) throws IOException {
+        writeShort(v & 0xffff);
+        writeShort((v >>> 16) & 0xffff);
+    }
+
+    private void writeBytes(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        written += len;
+    }
+
+    /**
+     * 记录第一次失败，之后的写入直接失败，{@link #close()}时重新抛出
+     */
+    private void fail(Exception e) {
+        if (null == failure) {
+            failure = e;
+        }
+    }
+
+    private void checkNotClosed() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (null != failure) {
+            throw new IOException("zip stream failed", failure);
+        }
+    }
+
+    /**
+     * 高16位为日期，低16位为时间
+     */
+    private static int toDosTime(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    private static final class Entry {
+        private final byte[] name;
+        private final long offset;
+        private long crc;
+        private long size;
+        private long compressedSize;
+        private int blocks;
+
+        private Entry(byte[] name, long offset) {
+            this.name = name;
+            this.offset = offset;
+        }
+    }
+
+}
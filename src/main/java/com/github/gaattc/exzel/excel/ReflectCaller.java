@@ -3,6 +3,8 @@ package com.github.gaattc.exzel.excel;
 import lombok.extern.slf4j.Slf4j;
 import org.joor.Reflect;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.regex.Pattern;
 
 /**
@@ -16,21 +18,33 @@ public class ReflectCaller {
     private static final String SPLITTER = "#";
     private static final String EMPTY = "";
     private static final Pattern PATTERN = Pattern.compile("((\\S+)#(\\S+))");
+    /**
+     * {@link #tryFunction(String, Object, ClassLoader)}、{@link #invoke(Method, Object)}调用失败时的返回值，区别于方法本身的返回值
+     */
+    public static final Object FAILED = new Object();
 
     /**
      * {@link ExcelMapping#contentConverter()}
      */
     public static Object function(String methodFullName, Object origin, ClassLoader classLoader) {
+        Object result = tryFunction(methodFullName, origin, classLoader);
+        return FAILED == result ? origin : result;
+    }
+
+    /**
+     * 同{@link #function(String, Object, ClassLoader)}，调用失败时返回{@link #FAILED}而非原值，供缓存结果的场景区分失败
+     */
+    public static Object tryFunction(String methodFullName, Object origin, ClassLoader classLoader) {
         try {
             if (!checkMethodCorrect(methodFullName)) {
-                return origin;
+                return FAILED;
             }
             String[] split = methodFullName.split(SPLITTER);
             return Reflect.onClass(split[0], classLoader)
                     .call(split[1], origin)
                     .get();
         } catch (Throwable ignore) {
-            return origin;
+            return FAILED;
         }
     }
 
@@ -51,6 +65,47 @@ public class ReflectCaller {
         }
     }
 
+    /**
+     * 预先解析单参数静态方法，供逐个单元格调用的场景使用，如{@link ExcelDataStyle#condition()}
+     *
+     * @return 方法名语法错误或找不到方法时返回null
+     */
+    public static Method resolve(String methodFullName, ClassLoader classLoader) {
+        if (!checkMethodCorrect(methodFullName)) {
+            return null;
+        }
+        String[] split = methodFullName.split(SPLITTER);
+        try {
+            for (Class<?> clazz = Class.forName(split[0], true, classLoader); null != clazz; clazz = clazz.getSuperclass()) {
+                for (Method method : clazz.getDeclaredMethods()) {
+                    if (method.getName().equals(split[1])
+                            && Modifier.isStatic(method.getModifiers())
+                            && method.getParameterCount() == 1) {
+                        method.setAccessible(true);
+                        return method;
+                    }
+                }
+            }
+        } catch (Throwable ignore) {
+            // 同function，解析失败视为方法不存在
+        }
+        log.warn("static method not found: {}, ignored", methodFullName);
+        return null;
+    }
+
+    /**
+     * 调用{@link #resolve(String, ClassLoader)}解析出的方法
+     *
+     * @return 调用失败（如入参类型不匹配、方法抛出异常）返回{@link #FAILED}
+     */
+    public static Object invoke(Method method, Object origin) {
+        try {
+            return method.invoke(null, origin);
+        } catch (Throwable ignore) {
+            return FAILED;
+        }
+    }
+
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     private static boolean checkMethodCorrect(String methodFullName) {
         boolean matches = PATTERN.matcher(methodFullName).matches();
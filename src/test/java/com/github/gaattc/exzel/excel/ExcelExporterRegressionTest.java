@@ -0,0 +1,406 @@
+package com.github.gaattc.exzel.excel;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.IntFunction;
+
+/**
+ * 端到端内存与临时文件回归测试，仅在regression profile下运行：mvn -P regression verify
+ * 对每个脚本化的大规模导出记录堆峰值、分配字节数、GC耗时、临时文件峰值及残留、耗时，
+ * 与regression-thresholds.properties中提交的阈值比较，任一指标超过阈值即失败。
+ * 可通过-Dexzel.regression.thresholds=文件路径 使用其他阈值文件
+ *
+ * @author gaattc
+ * @since 1.0
+ * Created by gaattc on 2023/7/18
+ */
+@SuppressWarnings("unused")
+public class ExcelExporterRegressionTest {
+
+    private static final String ENABLED_PROPERTY = "exzel.regression";
+    private static final String THRESHOLDS_PROPERTY = "exzel.regression.thresholds";
+    private static final String THRESHOLDS_RESOURCE = "regression-thresholds.properties";
+    private static final long TEMP_SAMPLE_INTERVAL_MILLIS = 20L;
+
+    private static Properties thresholds;
+    private static File tempDir;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        Assume.assumeTrue("regression harness disabled, run with -P regression", Boolean.getBoolean(ENABLED_PROPERTY));
+        thresholds = loadThresholds();
+        tempDir = Files.createTempDirectory("exzel-regression").toFile();
+        // 将poi的SXSSF临时文件集中到独立目录以便统计
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy(tempDir));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        if (null == tempDir) {
+            return;
+        }
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy());
+        deleteRecursively(tempDir);
+    }
+
+    @Test
+    public void millionRows() throws Exception {
+        assertNoRegression("million-rows", new MillionRows());
+    }
+
+    @Test
+    public void wideSheet() throws Exception {
+        assertNoRegression("wide-sheet", new WideSheet());
+    }
+
+    @Test
+    public void deepRecursiveMapping() throws Exception {
+        assertNoRegression("deep-recursive-mapping", new DeepRecursiveMapping());
+    }
+
+    @Test
+    public void multiSheet() throws Exception {
+        assertNoRegression("multi-sheet", new MultiSheet());
+    }
+
+    private static void assertNoRegression(String scenario, Object source) throws Exception {
+        Map<String, Long> metrics = measure(source);
+        List<String> regressions = new ArrayList<>();
+        StringBuilder report = new StringBuilder("[regression] ").append(scenario);
+        for (Map.Entry<String, Long> metric : metrics.entrySet()) {
+            String key = scenario + "." + metric.getKey();
+            String threshold = thresholds.getProperty(key);
+            Assert.assertNotNull("no threshold committed for " + key, threshold);
+            long value = metric.getValue();
+            long limit = Long.parseLong(threshold.trim());
+            report.append(", ").append(metric.getKey()).append(": ").append(value).append("/").append(limit);
+            // 值为负表示当前jvm不支持该指标
+            if (value > limit) {
+                regressions.add(key + " = " + value + " exceeds threshold " + limit);
+            }
+        }
+        System.out.println(report);
+        Assert.assertTrue("regression detected: " + regressions, regressions.isEmpty());
+    }
+
+    private static Map<String, Long> measure(Object source) throws Exception {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long gcMillisBefore = gcMillis();
+        long allocatedBefore = allocatedBytes();
+        TempDirSampler sampler = new TempDirSampler(tempDir);
+        sampler.start();
+        long start = System.nanoTime();
+        try {
+            new ExcelExporter(source)
+                    .generate()
+                    .output(new DiscardOutputStream());
+        } finally {
+            sampler.interrupt();
+            sampler.join();
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000L;
+        long allocatedAfter = allocatedBytes();
+        long peakHeap = 0;
+        // 各内存池峰值之和，为整体堆峰值的上界
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("peakHeapBytes", peakHeap);
+        metrics.put("allocatedBytes", allocatedBefore < 0 ? -1L : allocatedAfter - allocatedBefore);
+        metrics.put("gcPauseMillis", gcMillis() - gcMillisBefore);
+        metrics.put("peakTempFileBytes", sampler.peakBytes);
+        metrics.put("leakedTempFileBytes", directorySize(tempDir));
+        metrics.put("wallMillis", wallMillis);
+        return metrics;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * 当前线程累计分配字节数，仅HotSpot系jvm支持，不支持返回-1
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+
+    private static long directorySize(File dir) {
+        File[] files = dir.listFiles();
+        if (null == files) {
+            return 0;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.isDirectory() ? directorySize(file) : file.length();
+        }
+        return size;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] files = file.listFiles();
+        if (null != files) {
+            for (File child : files) {
+                deleteRecursively(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private static Properties loadThresholds() throws IOException {
+        Properties properties = new Properties();
+        String path = System.getProperty(THRESHOLDS_PROPERTY);
+        try (InputStream inputStream = null == path
+                ? ExcelExporterRegressionTest.class.getClassLoader().getResourceAsStream(THRESHOLDS_RESOURCE)
+                : Files.newInputStream(Paths.get(path))) {
+            Assert.assertNotNull("thresholds not found: " + THRESHOLDS_RESOURCE, inputStream);
+            properties.load(inputStream);
+        }
+        return properties;
+    }
+
+    private static <T> List<T> rows(int count, IntFunction<T> factory) {
+        List<T> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(factory.apply(i));
+        }
+        return list;
+    }
+
+    /**
+     * 定期采样临时目录大小，记录峰值
+     */
+    private static final class TempDirSampler extends Thread {
+        private final File dir;
+        private volatile long peakBytes;
+
+        private TempDirSampler(File dir) {
+            this.dir = dir;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                peakBytes = Math.max(peakBytes, directorySize(dir));
+                try {
+                    Thread.sleep(TEMP_SAMPLE_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class DiscardOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    private final static class MillionRows {
+        @ExcelRecursiveMapping
+        private final List<NarrowRow> rows = rows(1_000_000, NarrowRow::new);
+    }
+
+    private final static class NarrowRow {
+        @ExcelMapping(columnIndex = 0)
+        private final String name;
+        @ExcelMapping(columnIndex = 1)
+        @ExcelStyle(cellType = CellType.NUMERIC)
+        private final long id;
+        @ExcelMapping(columnIndex = 2, tryFormatDateTime = true)
+        private final long time;
+
+        private NarrowRow(int i) {
+            name = "row-" + i;
+            id = i;
+            time = 1681873419533L + i * 1000L;
+        }
+    }
+
+    private final static class WideSheet {
+        @ExcelRecursiveMapping
+        private final List<WideRow> rows = rows(50_000, i -> new WideRow());
+    }
+
+    private final static class WideRow {
+        @ExcelMapping(columnIndex = 0)
+        private final String c0 = "column-0";
+        @ExcelMapping(columnIndex = 1)
+        private final String c1 = "column-1";
+        @ExcelMapping(columnIndex = 2)
+        private final String c2 = "column-2";
+        @ExcelMapping(columnIndex = 3)
+        private final String c3 = "column-3";
+        @ExcelMapping(columnIndex = 4)
+        private final String c4 = "column-4";
+        @ExcelMapping(columnIndex = 5)
+        private final String c5 = "column-5";
+        @ExcelMapping(columnIndex = 6)
+        private final String c6 = "column-6";
+        @ExcelMapping(columnIndex = 7)
+        private final String c7 = "column-7";
+        @ExcelMapping(columnIndex = 8)
+        private final String c8 = "column-8";
+        @ExcelMapping(columnIndex = 9)
+        private final String c9 = "column-9";
+        @ExcelMapping(columnIndex = 10)
+        private final String c10 = "column-10";
+        @ExcelMapping(columnIndex = 11)
+        private final String c11 = "column-11";
+        @ExcelMapping(columnIndex = 12)
+        private final String c12 = "column-12";
+        @ExcelMapping(columnIndex = 13)
+        private final String c13 = "column-13";
+        @ExcelMapping(columnIndex = 14)
+        private final String c14 = "column-14";
+        @ExcelMapping(columnIndex = 15)
+        private final String c15 = "column-15";
+        @ExcelRecursiveMapping
+        private final WideRowPart part1 = new WideRowPart();
+        @ExcelRecursiveMapping
+        private final WideRowNumbers part2 = new WideRowNumbers();
+    }
+
+    private final static class WideRowPart {
+        @ExcelMapping(columnIndex = 16)
+        private final String c16 = "column-16";
+        @ExcelMapping(columnIndex = 17)
+        private final String c17 = "column-17";
+        @ExcelMapping(columnIndex = 18)
+        private final String c18 = "column-18";
+        @ExcelMapping(columnIndex = 19)
+        private final String c19 = "column-19";
+        @ExcelMapping(columnIndex = 20)
+        private final String c20 = "column-20";
+        @ExcelMapping(columnIndex = 21)
+        private final String c21 = "column-21";
+        @ExcelMapping(columnIndex = 22)
+        private final String c22 = "column-22";
+        @ExcelMapping(columnIndex = 23)
+        private final String c23 = "column-23";
+    }
+
+    private final static class WideRowNumbers {
+        @ExcelMapping(columnIndex = 24)
+        @ExcelStyle(cellType = CellType.NUMERIC)
+        private final double c24 = 24.24;
+        @ExcelMapping(columnIndex = 25)
+        @ExcelStyle(cellType = CellType.NUMERIC)
+        private final double c25 = 25.25;
+        @ExcelMapping(columnIndex = 26)
+        @ExcelStyle(cellType = CellType.NUMERIC)
+        private final double c26 = 26.26;
+        @ExcelMapping(columnIndex = 27)
+        @ExcelStyle(cellType = CellType.NUMERIC)
+        private final double c27 = 27.27;
+        @ExcelMapping(columnIndex = 28)
+        @ExcelStyle(cellType = CellType.BOOLEAN)
+        private final boolean c28 = true;
+        @ExcelMapping(columnIndex = 29)
+        @ExcelStyle(cellType = CellType.BOOLEAN)
+        private final boolean c29 = false;
+    }
+
+    private final static class DeepRecursiveMapping {
+        @ExcelRecursiveMapping
+        private final List<Level0> rows = rows(100_000, i -> new Level0());
+    }
+
+    private final static class Level0 {
+        @ExcelMapping(columnIndex = 0)
+        private final String level0 = "level-0";
+        @ExcelRecursiveMapping
+        private final Level1 inner = new Level1();
+    }
+
+    private final static class Level1 {
+        @ExcelMapping(columnIndex = 1)
+        private final String level1 = "level-1";
+        @ExcelRecursiveMapping
+        private final Level2 inner = new Level2();
+    }
+
+    private final static class Level2 {
+        @ExcelMapping(columnIndex = 2)
+        private final String level2 = "level-2";
+        @ExcelRecursiveMapping
+        private final Level3 inner = new Level3();
+    }
+
+    private final static class Level3 {
+        @ExcelMapping(columnIndex = 3)
+        private final String level3 = "level-3";
+        @ExcelRecursiveMapping
+        private final Level4 inner = new Level4();
+    }
+
+    private final static class Level4 {
+        @ExcelMapping(columnIndex = 4)
+        private final String level4 = "level-4";
+        @ExcelRecursiveMapping
+        private final Level5 inner = new Level5();
+    }
+
+    private final static class Level5 {
+        @ExcelMapping(columnIndex = 5)
+        private final String level5 = "level-5";
+    }
+
+    private final static class MultiSheet {
+        @ExcelMapping(sheetName = "sheet1", columnIndex = 0)
+        private final List<String> sheet1 = rows(250_000, i -> "sheet1-" + i);
+        @ExcelMapping(sheetName = "sheet2", columnIndex = 0)
+        private final List<String> sheet2 = rows(250_000, i -> "sheet2-" + i);
+        @ExcelMapping(sheetName = "sheet3", columnIndex = 0)
+        private final List<String> sheet3 = rows(250_000, i -> "sheet3-" + i);
+        @ExcelMapping(sheetName = "sheet4", columnIndex = 0)
+        private final List<String> sheet4 = rows(250_000, i -> "sheet4-" + i);
+    }
+
+}
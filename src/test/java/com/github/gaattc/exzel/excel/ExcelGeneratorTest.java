@@ -4,24 +4,44 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
 
 /**
  * @author gaattc
@@ -71,27 +91,387 @@ public class ExcelGeneratorTest {
                 .output(Files.newOutputStream(path));
     }
 
-    @Ignore("test for performance")
     @Test
-    public void test10000Row() throws Exception {
-        Object source = new Object() {
-            @ExcelMapping(columnIndex = 0)
-            private final List<Bar> inners = getInners();
+    public void testPureConverter() throws Exception {
+        TestForPureConvert source = new TestForPureConvert();
+        Workbook workbook = new ExcelExporter(source)
+                .generate()
+                .getWorkbook();
+        // 4个不同的值只转换4次
+        Assert.assertEquals(4, TestForPureConvert.CONVERT_COUNT.get());
+        Sheet sheet = workbook.getSheet("sheet");
+        Assert.assertEquals("status-2", sheet.getRow(3).getCell(0).getStringCellValue());
+        Assert.assertEquals("status-2", sheet.getRow(7).getCell(0).getStringCellValue());
+    }
+
+    @Test
+    public void testGlobalPureConverter() throws Exception {
+        new ExcelExporter(new TestForGlobalPureConvert())
+                .generate();
+        new ExcelExporter(new TestForGlobalPureConvert())
+                .generate();
+        // 第二次导出全部命中全局缓存
+        Assert.assertEquals(4, TestForGlobalPureConvert.CONVERT_COUNT.get());
+        Assert.assertTrue(ConverterCache.global(ExcelGenerator.class.getClassLoader()).stats().hitCount() > 0);
+    }
+
+    @Test
+    public void testPureConverterFailureNotCached() {
+        ConverterCache cache = new ConverterCache();
+        String converter = "com.github.gaattc.exzel.excel.ExcelGeneratorTest$TestForPureConvert#getStatusOnRetry";
+        ClassLoader classLoader = ExcelGeneratorTest.class.getClassLoader();
+        // 转换失败返回原值且不缓存，下次调用重新转换
+        Assert.assertEquals(1, cache.function(converter, 1, classLoader));
+        Assert.assertEquals("status-1", cache.function(converter, 1, classLoader));
+        Assert.assertEquals("status-1", cache.function(converter, 1, classLoader));
+        Assert.assertEquals(2, TestForPureConvert.RETRY_COUNT.get());
+    }
+
+    @Test
+    public void testProjection() throws Exception {
+        Workbook workbook = new ExcelExporter(new Foo())
+                .withProjection(ExcelProjection.create().orderColumns("sheet", 6, 0))
+                .generate()
+                .getWorkbook();
+        Assert.assertNull(workbook.getSheet("iterable"));
+        Sheet sheet = workbook.getSheet("sheet");
+        Row headerRow = sheet.getRow(0);
+        Assert.assertEquals(2, headerRow.getLastCellNum());
+        Assert.assertEquals("innerStringField", headerRow.getCell(0).getStringCellValue());
+        Assert.assertEquals("stringField", headerRow.getCell(1).getStringCellValue());
+        Assert.assertEquals("Bar#innerStringField", sheet.getRow(1).getCell(0).getStringCellValue());
+        Assert.assertEquals("stringField", sheet.getRow(1).getCell(1).getStringCellValue());
+    }
+
+    @Test
+    public void testProjectionSkipExcluded() throws Exception {
+        Workbook workbook = new ExcelExporter(new TestForProjection())
+                .withProjection(ExcelProjection.create().includeColumns("sheet", 1))
+                .generate()
+                .getWorkbook();
+        // 未选中的列及子树不会触发转换
+        Assert.assertEquals(0, TestForProjection.CONVERT_COUNT.get());
+        Sheet sheet = workbook.getSheet("sheet");
+        Assert.assertEquals(1, sheet.getRow(0).getLastCellNum());
+        Assert.assertEquals("includedField", sheet.getRow(0).getCell(0).getStringCellValue());
+    }
+
+    @Test
+    public void testProjectionWholeSheet() {
+        // 整体选中的sheet页不会被后续的列选择收窄
+        ExcelProjection projection = ExcelProjection.create()
+                .includeSheet("sheet")
+                .includeColumns("sheet", 1);
+        Assert.assertTrue(projection.includes("sheet", 0));
+        Assert.assertTrue(projection.compact("sheet", Lists.newArrayList(0, 1, 2)).isEmpty());
+        try {
+            projection.orderColumns("sheet", 1, 0);
+            Assert.fail("whole sheet columns can not be ordered");
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
+    @Test
+    public void testCancellation() throws Exception {
+        ExportCancellation cancellation = ExportCancellation.create();
+        ExcelExporter exporter = new ExcelExporter(new Foo())
+                .withCancellation(cancellation)
+                .generate();
+        cancellation.cancel();
+        try {
+            exporter.output(new ByteArrayOutputStream());
+            Assert.fail("export should be cancelled");
+        } catch (CancellationException e) {
+            Assert.assertEquals(ExportCancellation.Reason.CANCELLED, cancellation.getReason());
+        }
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        ExportCancellation cancellation = ExportCancellation.withDeadline(0, TimeUnit.MILLISECONDS);
+        try {
+            new ExcelExporter(new Foo())
+                    .withCancellation(cancellation)
+                    .generate();
+            Assert.fail("export should be cancelled");
+        } catch (CancellationException e) {
+            Assert.assertEquals(ExportCancellation.Reason.DEADLINE_EXCEEDED, cancellation.getReason());
+        }
+    }
+
+    @Test
+    public void testParallelDeflate() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            new ExcelExporter(new TestForDeflate())
+                    .withParallelDeflate(executor, Deflater.BEST_SPEED)
+                    .generate()
+                    .output(outputStream);
+            Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(outputStream.toByteArray()));
+            Sheet sheet = workbook.getSheet("sheet");
+            Assert.assertEquals(TestForDeflate.ROW_COUNT, sheet.getLastRowNum());
+            Assert.assertEquals("value-0", sheet.getRow(1).getCell(0).getStringCellValue());
+            Assert.assertEquals("value-" + (TestForDeflate.ROW_COUNT - 1),
+                    sheet.getRow(TestForDeflate.ROW_COUNT).getCell(0).getStringCellValue());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidDeflateLevel() {
+        // 设置时即校验，不在输出过程中失败
+        for (int level : new int[]{Deflater.DEFAULT_COMPRESSION - 1, Deflater.BEST_COMPRESSION + 1}) {
+            try {
+                new ExcelExporter(new Foo()).withDeflateLevel(level);
+                Assert.fail("invalid deflate level should be rejected: " + level);
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals("invalid deflate level: " + level, e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testCancellationDuringBinding() throws Exception {
+        TestForCancellation.CANCELLATION.set(ExportCancellation.create());
+        try {
+            new ExcelExporter(new TestForCancellation())
+                    .withCancellation(TestForCancellation.CANCELLATION.get())
+                    .generate();
+            Assert.fail("export should be cancelled");
+        } catch (CancellationException e) {
+            Assert.assertEquals(ExportCancellation.Reason.CANCELLED, TestForCancellation.CANCELLATION.get().getReason());
+            // 取消后的下一个检查点即停止绑定
+            Assert.assertTrue(TestForCancellation.CONVERT_COUNT.get() < TestForCancellation.ROW_COUNT);
+        }
+    }
+
+    @Test
+    public void testCancellationReleasesTempFiles() throws Exception {
+        File tempDir = Files.createTempDirectory("exzel-test").toFile();
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy(tempDir));
+        try {
+            ExportCancellation cancellation = ExportCancellation.create();
+            ExcelExporter exporter = new ExcelExporter(new TestForDeflate())
+                    .withCancellation(cancellation)
+                    .generate();
+            Assert.assertTrue(listFiles(tempDir).length > 0);
+            cancellation.cancel();
+            try {
+                exporter.output(new ByteArrayOutputStream());
+                Assert.fail("export should be cancelled");
+            } catch (CancellationException e) {
+                Assert.assertEquals(0, listFiles(tempDir).length);
+            }
+        } finally {
+            TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy());
+            for (File file : listFiles(tempDir)) {
+                file.delete();
+            }
+            tempDir.delete();
+        }
+    }
+
+    @Test
+    public void testFailureReleasesTempFiles() throws Exception {
+        File tempDir = Files.createTempDirectory("exzel-test").toFile();
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy(tempDir));
+        try {
+            new ExcelExporter(new TestForFailure()).generate();
+            Assert.fail("generation should fail");
+        } catch (NumberFormatException e) {
+            // 写入sheet页时失败，同样立即释放临时文件
+            Assert.assertEquals(0, listFiles(tempDir).length);
+        } finally {
+            TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy());
+            for (File file : listFiles(tempDir)) {
+                file.delete();
+            }
+            tempDir.delete();
+        }
+    }
 
-            private List<Bar> getInners() {
-                List<Bar> list = new ArrayList<>(10000);
-                for (int i = 0; i < 10000; i++) {
-                    list.add(new Bar());
+    @Test
+    public void testClientDisconnect() throws Exception {
+        ExportCancellation cancellation = ExportCancellation.create();
+        HttpServletResponse response = disconnectingResponse(64 * 1024);
+        try {
+            new ExcelExporter(new TestForDeflate())
+                    .withCancellation(cancellation)
+                    .generate()
+                    .response(response, "disconnect");
+            Assert.fail("export should be cancelled");
+        } catch (CancellationException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+            Assert.assertEquals(ExportCancellation.Reason.CLIENT_DISCONNECTED, cancellation.getReason());
+        }
+    }
+
+    @Test
+    public void testTempFileFailureIsNotClientDisconnect() throws Exception {
+        // 模拟输出时临时目录写满，失败发生在写出到客户端之前
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy() {
+            @Override
+            public File createTempFile(String prefix, String suffix) throws IOException {
+                if ("poi-sxssf-template".equals(prefix)) {
+                    throw new IOException("No space left on device");
+                }
+                return super.createTempFile(prefix, suffix);
+            }
+        });
+        try {
+            ExportCancellation cancellation = ExportCancellation.create();
+            new ExcelExporter(new TestForDeflate())
+                    .withCancellation(cancellation)
+                    .generate()
+                    .response(disconnectingResponse(Integer.MAX_VALUE), "disk-full");
+            Assert.assertNull(cancellation.getReason());
+        } finally {
+            TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy());
+        }
+    }
+
+    @Test
+    public void testClientDisconnectWithParallelDeflate() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ExportCancellation cancellation = ExportCancellation.create();
+        HttpServletResponse response = disconnectingResponse(64 * 1024);
+        try {
+            new ExcelExporter(new TestForDeflate())
+                    .withParallelDeflate(executor, Deflater.BEST_SPEED)
+                    .withCancellation(cancellation)
+                    .generate()
+                    .response(response, "disconnect");
+            Assert.fail("export should be cancelled");
+        } catch (CancellationException e) {
+            // 原始的IOException不能被关闭zip流时的异常掩盖
+            Assert.assertTrue(e.getCause() instanceof IOException);
+            Assert.assertEquals("Broken pipe", e.getCause().getMessage());
+            Assert.assertEquals(ExportCancellation.Reason.CLIENT_DISCONNECTED, cancellation.getReason());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelZipSinkFailure() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicInteger written = new AtomicInteger();
+        OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (written.addAndGet(len) > 16 * 1024) {
+                    throw new IOException("sink failed");
                 }
-                return list;
             }
         };
-        URI uri = getClass().getClassLoader().getResource("test.xlsx").toURI();
-        Path path = Paths.get(uri);
-        path.toFile().createNewFile();
-        new ExcelExporter(source)
+        // 一块半不可压缩数据：写入时只提交首块，closeEntry写出压缩块时底层输出流失败
+        byte[] data = new byte[ParallelZipOutputStream.DEFAULT_BLOCK_SIZE * 3 / 2];
+        new Random(0).nextBytes(data);
+        ParallelZipOutputStream zos = new ParallelZipOutputStream(sink, executor, Deflater.BEST_SPEED);
+        zos.putNextEntry("data");
+        zos.write(data);
+        try {
+            zos.closeEntry();
+            Assert.fail("sink failure should be thrown");
+        } catch (IOException e) {
+            Assert.assertEquals("sink failed", e.getMessage());
+        }
+        try {
+            zos.close();
+            Assert.fail("close should rethrow the sink failure");
+        } catch (IOException e) {
+            // 不再尝试补全条目与中央目录，重新抛出原异常
+            Assert.assertEquals("sink failed", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+        // 已关闭，再次关闭无操作
+        zos.close();
+    }
+
+    @Ignore("benchmark for parallel deflate")
+    @Test
+    public void benchmarkParallelDeflate() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int level : new int[]{Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION}) {
+                long serialCost = 0;
+                long parallelCost = 0;
+                for (int i = 0; i < 5; i++) {
+                    ExcelExporter serial = new ExcelExporter(new TestForDeflate()).withDeflateLevel(level).generate();
+                    long start = System.nanoTime();
+                    serial.output(new ByteArrayOutputStream());
+                    serialCost += System.nanoTime() - start;
+                    ExcelExporter parallel = new ExcelExporter(new TestForDeflate()).withParallelDeflate(executor, level).generate();
+                    start = System.nanoTime();
+                    parallel.output(new ByteArrayOutputStream());
+                    parallelCost += System.nanoTime() - start;
+                }
+                System.out.printf("level: %d, threads: %d, serial: %dms, parallel: %dms%n",
+                        level, threads, TimeUnit.NANOSECONDS.toMillis(serialCost / 5), TimeUnit.NANOSECONDS.toMillis(parallelCost / 5));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDataStyle() throws Exception {
+        Workbook workbook = new ExcelExporter(new TestForDataStyle())
                 .generate()
-                .output(new BufferedOutputStream(Files.newOutputStream(path)));
+                .getWorkbook();
+        Sheet sheet = workbook.getSheet("sheet");
+        // 相同样式组合在列间共享
+        Assert.assertEquals(sheet.getRow(1).getCell(0).getCellStyle().getIndex(),
+                sheet.getRow(1).getCell(1).getCellStyle().getIndex());
+        Assert.assertEquals("0.00", sheet.getRow(1).getCell(0).getCellStyle().getDataFormatString());
+        // 设置了数据格式的列以数值写入，格式才能生效
+        Assert.assertEquals(CellType.NUMERIC, sheet.getRow(2).getCell(0).getCellTypeEnum());
+        Assert.assertEquals(-1, sheet.getRow(2).getCell(0).getNumericCellValue(), 0);
+        Assert.assertEquals("-1.00", new DataFormatter().formatCellValue(sheet.getRow(2).getCell(0)));
+        // 条件样式
+        Font positiveFont = workbook.getFontAt(sheet.getRow(1).getCell(0).getCellStyle().getFontIndex());
+        Font negativeFont = workbook.getFontAt(sheet.getRow(2).getCell(0).getCellStyle().getFontIndex());
+        Assert.assertFalse(positiveFont.getBold());
+        Assert.assertTrue(negativeFont.getBold());
+        // 条件方法调用失败（入参类型不匹配）视为不满足
+        Font flagFont = workbook.getFontAt(sheet.getRow(1).getCell(2).getCellStyle().getFontIndex());
+        Assert.assertFalse(flagFont.getBold());
+        Assert.assertEquals(CellType.STRING, sheet.getRow(1).getCell(2).getCellTypeEnum());
+        // 表头样式、数据行默认样式、正负值 x 奇偶行，每种组合只创建一次
+        Assert.assertTrue(workbook.getNumCellStyles() <= 8);
+    }
+
+    private static File[] listFiles(File dir) {
+        File[] files = dir.listFiles();
+        return null == files ? new File[0] : files;
+    }
+
+    /**
+     * 写出limit字节后模拟客户端断开连接
+     */
+    private static HttpServletResponse disconnectingResponse(int limit) {
+        ServletOutputStream outputStream = new ServletOutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++written > limit) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(ExcelGeneratorTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class},
+                (proxy, method, args) -> "getOutputStream".equals(method.getName()) ? outputStream : null);
     }
 
     private static void assertWorkbookEqual(Workbook workbook, Workbook expectWorkbook) {
@@ -176,4 +556,139 @@ public class ExcelGeneratorTest {
 
     }
 
+    private final static class TestForProjection {
+        private static final AtomicInteger CONVERT_COUNT = new AtomicInteger();
+
+        @ExcelMapping(columnIndex = 0,
+                contentConverter = "com.github.gaattc.exzel.excel.ExcelGeneratorTest$TestForProjection#count")
+        private final String excludedField = "excludedField";
+        @ExcelMapping(columnIndex = 1)
+        private final String includedField = "includedField";
+        @ExcelRecursiveMapping
+        private final List<Excluded> excludedInners = Lists.newArrayList(new Excluded(), new Excluded());
+
+        private static String count(String originValue) {
+            CONVERT_COUNT.incrementAndGet();
+            return originValue;
+        }
+
+        private final static class Excluded {
+            @ExcelMapping(columnIndex = 2,
+                    contentConverter = "com.github.gaattc.exzel.excel.ExcelGeneratorTest$TestForProjection#count")
+            private final String excludedInnerField = "excludedInnerField";
+        }
+    }
+
+    private final static class TestForDeflate {
+        private static final int ROW_COUNT = 50000;
+
+        @ExcelMapping(columnIndex = 0)
+        private final List<String> valueField = getValues();
+
+        private static List<String> getValues() {
+            List<String> list = new ArrayList<>(ROW_COUNT);
+            for (int i = 0; i < ROW_COUNT; i++) {
+                list.add("value-" + i);
+            }
+            return list;
+        }
+    }
+
+    private final static class TestForDataStyle {
+        @ExcelMapping(columnIndex = 0)
+        @ExcelDataStyle(dataFormat = "0.00")
+        @ExcelDataStyle(dataFormat = "0.00", bold = true, fontColor = 0xffff0000,
+                condition = "com.github.gaattc.exzel.excel.ExcelGeneratorTest$TestForDataStyle#isNegative")
+        private final List<Integer> amountField = getAmounts();
+        @ExcelMapping(columnIndex = 1)
+        @ExcelDataStyle(dataFormat = "0.00")
+        private final List<Integer> otherAmountField = getAmounts();
+        @ExcelMapping(columnIndex = 2)
+        @ExcelDataStyle(bold = true, condition = "com.github.gaattc.exzel.excel.ExcelGeneratorTest$TestForDataStyle#isNegative")
+        private final List<Boolean> flagField = Collections.nCopies(20, true);
+
+        private static List<Integer> getAmounts() {
+            List<Integer> list = new ArrayList<>(20);
+            for (int i = 0; i < 20; i++) {
+                list.add(i % 2 == 0 ? i : -i);
+            }
+            return list;
+        }
+
+        private static boolean isNegative(Integer value) {
+            return value < 0;
+        }
+    }
+
+    private final static class TestForFailure {
+        @ExcelMapping(columnIndex = 0)
+        private final List<String> amountField = Lists.newArrayList("1", "2", "3");
+        @ExcelMapping(columnIndex = 1)
+        @ExcelStyle(cellType = CellType.NUMERIC)
+        private final List<String> invalidAmountField = Lists.newArrayList("1", "2", "not a number");
+    }
+
+    private final static class TestForGlobalPureConvert {
+        private static final AtomicInteger CONVERT_COUNT = new AtomicInteger();
+
+        @ExcelMapping(columnIndex = 0, pureConverter = true, globalConverterCache = true,
+                contentConverter = "com.github.gaattc.exzel.excel.ExcelGeneratorTest$TestForGlobalPureConvert#getStatus")
+        private final List<Integer> statusField = TestForPureConvert.getStatusList();
+
+        private static String getStatus(Integer status) {
+            CONVERT_COUNT.incrementAndGet();
+            return "global-status-" + status;
+        }
+    }
+
+    private final static class TestForCancellation {
+        private static final int ROW_COUNT = 10000;
+        private static final AtomicReference<ExportCancellation> CANCELLATION = new AtomicReference<>();
+        private static final AtomicInteger CONVERT_COUNT = new AtomicInteger();
+
+        @ExcelMapping(columnIndex = 0,
+                contentConverter = "com.github.gaattc.exzel.excel.ExcelGeneratorTest$TestForCancellation#cancelAfter10")
+        private final List<String> valueField = TestForDeflate.getValues().subList(0, ROW_COUNT);
+
+        private static String cancelAfter10(String originValue) {
+            if (CONVERT_COUNT.incrementAndGet() == 10) {
+                CANCELLATION.get().cancel();
+            }
+            return originValue;
+        }
+    }
+
+    private final static class TestForPureConvert {
+        private static final AtomicInteger CONVERT_COUNT = new AtomicInteger();
+        private static final AtomicInteger RETRY_COUNT = new AtomicInteger();
+
+        @ExcelMapping(columnIndex = 0, pureConverter = true,
+                contentConverter = "com.github.gaattc.exzel.excel.ExcelGeneratorTest$TestForPureConvert#getStatus")
+        private final List<Integer> statusField = getStatusList();
+
+        private static List<Integer> getStatusList() {
+            List<Integer> list = new ArrayList<>(100);
+            for (int i = 0; i < 100; i++) {
+                list.add(i % 4);
+            }
+            return list;
+        }
+
+        private static String getStatus(Integer status) {
+            CONVERT_COUNT.incrementAndGet();
+            return "status-" + status;
+        }
+
+        /**
+         * 首次调用模拟字典服务暂时不可用
+         */
+        private static String getStatusOnRetry(Integer status) {
+            if (RETRY_COUNT.getAndIncrement() == 0) {
+                throw new IllegalStateException("dictionary unavailable");
+            }
+            return "status-" + status;
+        }
+
+    }
+
 }
\ No newline at end of file